@@ -0,0 +1,31 @@
+package ScapegoatTree;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all the benchmarks with the GC profiler attached, so allocation rate per operation
+ * is reported next to the timings. Accepts the usual JMH command line, e.g.
+ * "LookupBenchmark -p size=100000 -p impl=scapegoat:0.6".
+ * The default sizes stop at 10000: ScapegoatTree.add() recounts subtree weights on every call, so filling
+ * a scapegoat set takes about a second at 10000 keys and minutes at 100000. Larger sets are
+ * available with -p size=..., the treeset and skiplist runs fill them quickly.
+ * The same benchmarks are available from "java -jar target/benchmarks.jar" after mvn package
+ * and from "gradle jmh".
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder opt = new OptionsBuilder()
+                .parent(cmdOptions)
+                .addProfiler(GCProfiler.class);
+        if (cmdOptions.getIncludes().isEmpty()) opt.include(BenchmarkRunner.class.getPackage().getName() + "\\.");
+
+        new Runner(opt.build()).run();
+    }
+}
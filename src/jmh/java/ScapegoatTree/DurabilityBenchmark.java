@@ -0,0 +1,89 @@
+package ScapegoatTree;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of the write-ahead log: the MixedBenchmark write (toggle a key) on a plain ScapegoatTree
+ * behind a lock and on DurableScapegoatTree with and without fsync.
+ * Every durable toggle returns only after its record is in the log; with 8 threads the writers
+ * that wait behind an fsync share the next one, which is what the group commit saves.
+ * The "mode" parameter is "memory", "nosync" or "fsync".
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DurabilityBenchmark {
+
+    @Param({"memory", "nosync", "fsync"})
+    String mode;
+
+    @Param({"10000"})
+    int size;
+
+    private ScapegoatTree<Integer> memoryTree;
+    private DurableScapegoatTree<Integer> durableTree;
+    private Path directory;
+    private Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int[] probes = KeyDistribution.UNIFORM.probes(LookupBenchmark.PROBE_COUNT, 2 * size, 4242);
+        keys = new Integer[probes.length];
+        for (int i = 0; i < probes.length; i++) keys[i] = probes[i];
+        int[] initial = KeyDistribution.UNIFORM.insertionOrder(size, 42);
+
+        if (mode.equals("memory")) {
+            memoryTree = new ScapegoatTree<>(0.7);
+            for (int key : initial) memoryTree.add(key);
+            return;
+        }
+        directory = Files.createTempDirectory("durability-benchmark");
+        //the initial keys go to the checkpoint through a log without fsync, only the toggles are measured
+        DurableScapegoatTree<Integer> loader = new DurableScapegoatTree<>(directory, KeyCodecs.INTEGER, 0.7, 0, false);
+        for (int key : initial) loader.add(key);
+        loader.checkpoint();
+        loader.close();
+        //no automatic checkpoints, only the log is measured
+        durableTree = new DurableScapegoatTree<>(directory, KeyCodecs.INTEGER, 0.7, 0, mode.equals("fsync"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (durableTree == null) return;
+        durableTree.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean toggle() throws IOException {
+        return toggleRandomKey();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean toggle8Threads() throws IOException {
+        return toggleRandomKey();
+    }
+
+    private boolean toggleRandomKey() throws IOException {
+        Integer key = keys[ThreadLocalRandom.current().nextInt(LookupBenchmark.PROBE_COUNT)];
+        if (durableTree != null) return durableTree.add(key) || durableTree.remove(key);
+        synchronized (memoryTree) {
+            return memoryTree.add(key) || memoryTree.remove(key);
+        }
+    }
+}
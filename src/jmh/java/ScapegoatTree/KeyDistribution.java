@@ -0,0 +1,86 @@
+package ScapegoatTree;
+
+import java.util.Random;
+
+/**
+ * Shapes of key streams used by the benchmarks.
+ * SEQUENTIAL also decides the insertion order of the prefilled sets (ascending keys are
+ * the worst case for an unbalanced BST and force the most scapegoat rebuilds),
+ * UNIFORM and ZIPFIAN prefill in shuffled order and only differ in how the probes are drawn.
+ */
+public enum KeyDistribution {
+    UNIFORM,
+    SEQUENTIAL,
+    ZIPFIAN;
+
+    //skew used by YCSB for its "zipfian" request distribution
+    private static final double ZIPF_SKEW = 0.99;
+
+    /**
+     * Returns the distinct keys 0, 2, 4, ... 2 * (size - 1) in the order they should be inserted.
+     * Only even keys are stored, so odd probes are guaranteed misses.
+     */
+    public int[] insertionOrder(int size, long seed) {
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++) keys[i] = 2 * i;
+        if (this != SEQUENTIAL) shuffle(keys, new Random(seed));
+        return keys;
+    }
+
+    /**
+     * Returns count probe keys drawn from [0 ; universe).
+     */
+    public int[] probes(int count, int universe, long seed) {
+        Random r = new Random(seed);
+        int[] keys = new int[count];
+        switch (this) {
+            case UNIFORM:
+                for (int i = 0; i < count; i++) keys[i] = r.nextInt(universe);
+                break;
+            case SEQUENTIAL:
+                int start = r.nextInt(universe);
+                for (int i = 0; i < count; i++) keys[i] = (start + i) % universe;
+                break;
+            case ZIPFIAN:
+                double[] cdf = zipfCdf(universe);
+                //hot ranks are scattered over the key space, otherwise they would all sit in one subtree
+                int[] rankToKey = new int[universe];
+                for (int i = 0; i < universe; i++) rankToKey[i] = i;
+                shuffle(rankToKey, r);
+                for (int i = 0; i < count; i++) keys[i] = rankToKey[rank(cdf, r.nextDouble())];
+                break;
+        }
+        return keys;
+    }
+
+    private static double[] zipfCdf(int universe) {
+        double[] cdf = new double[universe];
+        double sum = 0.0;
+        for (int i = 0; i < universe; i++) {
+            sum += 1.0 / Math.pow(i + 1, ZIPF_SKEW);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < universe; i++) cdf[i] /= sum;
+        return cdf;
+    }
+
+    private static int rank(double[] cdf, double p) {
+        int low = 0;
+        int high = cdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cdf[mid] < p) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static void shuffle(int[] keys, Random r) {
+        for (int i = keys.length - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            int tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+    }
+}
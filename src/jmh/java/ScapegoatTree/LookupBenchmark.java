@@ -0,0 +1,49 @@
+package ScapegoatTree;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * contains() on a prefilled set. Probes are drawn from twice the key range,
+ * so about a half of them are misses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class LookupBenchmark {
+    static final int PROBE_COUNT = 1 << 16;
+
+    @Param({"scapegoat:0.5", "scapegoat:0.7", "scapegoat:0.9", "treeset", "skiplist"})
+    String impl;
+
+    @Param({"1000", "10000"})
+    int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    private Set<Integer> set;
+    private Integer[] probes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        set = SetImplementation.filled(impl, distribution.insertionOrder(size, 42));
+        int[] keys = distribution.probes(PROBE_COUNT, 2 * size, 4242);
+        //boxing in advance, the benchmark should not measure Integer.valueOf
+        probes = new Integer[PROBE_COUNT];
+        for (int i = 0; i < PROBE_COUNT; i++) probes[i] = keys[i];
+    }
+
+    @Benchmark
+    public boolean contains() {
+        Integer key = probes[cursor];
+        cursor = (cursor + 1) & (PROBE_COUNT - 1);
+        return set.contains(key);
+    }
+}
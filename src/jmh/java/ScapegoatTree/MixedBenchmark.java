@@ -0,0 +1,60 @@
+package ScapegoatTree;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read/write mix on a prefilled set. A read is a contains(), a write toggles the key:
+ * it is added when absent and removed when present, so the set stays around its initial size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MixedBenchmark {
+
+    @Param({"scapegoat:0.5", "scapegoat:0.7", "scapegoat:0.9", "treeset", "skiplist"})
+    String impl;
+
+    @Param({"1000", "10000"})
+    int size;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    @Param({"95", "50", "5"})
+    int readPercent;
+
+    private Set<Integer> set;
+    private Integer[] keys;
+    private boolean[] reads;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        set = SetImplementation.filled(impl, distribution.insertionOrder(size, 42));
+        int[] probes = distribution.probes(LookupBenchmark.PROBE_COUNT, 2 * size, 4242);
+        Random r = new Random(424242);
+        keys = new Integer[probes.length];
+        reads = new boolean[probes.length];
+        for (int i = 0; i < probes.length; i++) {
+            keys[i] = probes[i];
+            reads[i] = r.nextInt(100) < readPercent;
+        }
+    }
+
+    @Benchmark
+    public boolean operation() {
+        Integer key = keys[cursor];
+        boolean read = reads[cursor];
+        cursor = (cursor + 1) & (LookupBenchmark.PROBE_COUNT - 1);
+        if (read) return set.contains(key);
+        if (set.add(key)) return true;
+        return set.remove(key);
+    }
+}
@@ -0,0 +1,60 @@
+package ScapegoatTree;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restoring a saved set: repeated add() of the saved keys against
+ * ScapegoatTreeSerializer.read() of the same keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ReloadBenchmark {
+
+    //addAll() already takes about a second here, read() alone can be run with -p size=1000000
+    @Param({"10000"})
+    int size;
+
+    @Param({"INTEGER", "INTEGER_DELTA"})
+    String codec;
+
+    private ArrayList<Integer> keys;
+    private byte[] serialized;
+    private KeyCodec<Integer> keyCodec;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        keyCodec = "INTEGER".equals(codec) ? KeyCodecs.INTEGER : KeyCodecs.INTEGER_DELTA;
+        ScapegoatTree<Integer> tree = new ScapegoatTree<>(0.7);
+        keys = new ArrayList<>();
+        for (int key : KeyDistribution.UNIFORM.insertionOrder(size, 42)) {
+            tree.add(key);
+            keys.add(key);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ScapegoatTreeSerializer.write(tree, keyCodec, Channels.newChannel(bytes));
+        serialized = bytes.toByteArray();
+    }
+
+    @Benchmark
+    public ScapegoatTree<Integer> addAll() {
+        ScapegoatTree<Integer> tree = new ScapegoatTree<>(0.7);
+        tree.addAll(keys);
+        return tree;
+    }
+
+    @Benchmark
+    public ScapegoatTree<Integer> read() throws IOException {
+        return ScapegoatTreeSerializer.read(Channels.newChannel(new ByteArrayInputStream(serialized)), keyCodec, 0.7);
+    }
+}
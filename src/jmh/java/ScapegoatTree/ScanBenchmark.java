@@ -0,0 +1,88 @@
+package ScapegoatTree;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayDeque;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full in-order iteration and short range scans.
+ * ScapegoatTree has no range view, so its range scan descends from the root to the lower bound
+ * and walks the nodes in order from there, the same work a subSet() iterator does for TreeSet.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ScanBenchmark {
+
+    @Param({"scapegoat:0.5", "scapegoat:0.7", "scapegoat:0.9", "treeset", "skiplist"})
+    String impl;
+
+    @Param({"1000", "10000"})
+    int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL"})
+    KeyDistribution distribution;
+
+    @Param({"100"})
+    int rangeWidth;
+
+    private Set<Integer> set;
+    private int[] lowerBounds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        set = SetImplementation.filled(impl, distribution.insertionOrder(size, 42));
+        //keys are 2 * i, so a range of 2 * rangeWidth holds rangeWidth elements
+        lowerBounds = KeyDistribution.UNIFORM.probes(LookupBenchmark.PROBE_COUNT,
+                Math.max(1, 2 * (size - rangeWidth)), 4242);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (Integer key : set) bh.consume(key);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void rangeScan(Blackhole bh) {
+        int from = lowerBounds[cursor];
+        int to = from + 2 * rangeWidth;
+        cursor = (cursor + 1) & (LookupBenchmark.PROBE_COUNT - 1);
+        if (set instanceof ScapegoatTree) {
+            scan(((ScapegoatTree<Integer>) set).getRoot(), from, to, bh);
+        }
+        else {
+            for (Integer key : ((NavigableSet<Integer>) set).subSet(from, true, to, false)) bh.consume(key);
+        }
+    }
+
+    private static void scan(TreeNode<Integer> node, int from, int to, Blackhole bh) {
+        ArrayDeque<TreeNode<Integer>> stack = new ArrayDeque<>();
+        //stack holds the nodes >= from whose right subtrees are still to be visited
+        while (node != null) {
+            if (node.getValue() >= from) {
+                stack.push(node);
+                node = node.getLeftChild();
+            }
+            else node = node.getRightChild();
+        }
+        while (!stack.isEmpty()) {
+            node = stack.pop();
+            if (node.getValue() >= to) return;
+            bh.consume(node.getValue());
+            node = node.getRightChild();
+            while (node != null) {
+                stack.push(node);
+                node = node.getLeftChild();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ScapegoatTree;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Creates the sets under comparison from the "impl" benchmark parameter.
+ * Accepted values: "scapegoat:<alpha>", "treeset" and "skiplist".
+ * The alpha is a part of the implementation name, so TreeSet and ConcurrentSkipListSet
+ * are not measured once per alpha value.
+ */
+final class SetImplementation {
+    private SetImplementation() {}
+
+    @SuppressWarnings("unchecked")
+    static Set<Integer> create(String impl) {
+        if (impl.startsWith("scapegoat:"))
+            return new ScapegoatTree<Integer>(Double.parseDouble(impl.substring("scapegoat:".length())));
+        switch (impl) {
+            case "treeset": return new TreeSet<>();
+            case "skiplist": return new ConcurrentSkipListSet<>();
+            default: throw new IllegalArgumentException("Unknown set implementation: " + impl);
+        }
+    }
+
+    static Set<Integer> filled(String impl, int[] keys) {
+        Set<Integer> set = create(impl);
+        for (int key : keys) set.add(key);
+        return set;
+    }
+}
@@ -0,0 +1,68 @@
+package ScapegoatTree;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk insertion into an empty set and bulk removal from a full one.
+ * Every measured call works on a fresh set, so no iteration measures duplicate adds
+ * or removals of keys that are already gone.
+ * Only SEQUENTIAL and UNIFORM are measured: ZIPFIAN shapes probes, its insertion order is the UNIFORM one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class UpdateBenchmark {
+
+    @Param({"scapegoat:0.5", "scapegoat:0.7", "scapegoat:0.9", "treeset", "skiplist"})
+    String impl;
+
+    @Param({"1000", "10000"})
+    int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL"})
+    KeyDistribution distribution;
+
+    private int[] insertKeys;
+    private int[] removeKeys;
+
+    @Setup(Level.Trial)
+    public void generateKeys() {
+        insertKeys = distribution.insertionOrder(size, 42);
+        //removal order is independent from the insertion one
+        removeKeys = distribution.insertionOrder(size, 4242);
+    }
+
+    //a full set for removeAll only, refilled before every iteration outside of the measured region
+    @State(Scope.Thread)
+    public static class FilledSet {
+        Set<Integer> set;
+
+        @Setup(Level.Iteration)
+        public void fill(UpdateBenchmark benchmark) {
+            set = SetImplementation.filled(benchmark.impl, benchmark.insertKeys);
+        }
+    }
+
+    @Benchmark
+    public Set<Integer> addAll() {
+        Set<Integer> set = SetImplementation.create(impl);
+        for (int key : insertKeys) set.add(key);
+        return set;
+    }
+
+    //one call per iteration, so the set is never drained twice and no per-invocation setup is needed
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 20)
+    public Set<Integer> removeAll(FilledSet filled) {
+        for (int key : removeKeys) filled.set.remove(key);
+        return filled.set;
+    }
+}
@@ -0,0 +1,334 @@
+package ScapegoatTree;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+/**
+ * ScapegoatTree that survives restarts: every successful add/remove is appended to a write-ahead log,
+ * and from time to time the whole set is saved as a checkpoint in the ScapegoatTreeSerializer format.
+ * On startup the checkpoint is loaded and the log is replayed on top of it.
+ *
+ * add() and remove() return only after their record is written to the log, and with fsync after it is
+ * forced to the disk; without fsync the record survives a crash of the process but not of the OS.
+ * The log is group-committed: while one thread writes and forces a frame (length, CRC32, records),
+ * the records of the other threads gather in memory, and the next of them writes all of them
+ * as one frame with one fsync. A single thread gets one fsync per operation.
+ * A frame torn by a crash fails its length or CRC check and is cut off on the next startup.
+ *
+ * If writing the log fails, the partial frame is cut off and the instance refuses any further operation:
+ * the records that were waiting for that frame are in memory but not on the disk. Reopening the directory
+ * restores the last durable state.
+ */
+public class DurableScapegoatTree<T extends Comparable> implements Iterable<T>, Closeable {
+    static final String CHECKPOINT_FILE = "checkpoint.sgt";
+    static final String LOG_FILE = "wal.log";
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final KeyCodec<T> codec;
+    private final int checkpointInterval;
+    private final boolean fsync;
+    //guarded by this: the tree, the pending records and the counters
+    private final ScapegoatTree<T> tree;
+    private final BatchBuffer batchBytes = new BatchBuffer();
+    private final DataOutputStream batch = new DataOutputStream(batchBytes);
+    private long appendedRecords = 0;
+    private int opsSinceCheckpoint = 0;
+    private volatile IOException failure = null;
+    //guarded by logLock, taken before this and never while this is held: the log file
+    private final Object logLock = new Object();
+    private final FileChannel log;
+    private long durableRecords = 0;
+
+    /**
+     * @param checkpointInterval logged operations between automatic checkpoints, 0 for checkpoint() calls only
+     * @param fsync whether every frame is forced to the disk, otherwise it is left to the OS page cache
+     */
+    public DurableScapegoatTree(Path directory, KeyCodec<T> codec, double alpha,
+                                int checkpointInterval, boolean fsync) throws IOException {
+        if (checkpointInterval < 0)
+            throw new IllegalArgumentException("checkpointInterval should not be negative. Current checkpointInterval: " + checkpointInterval);
+        this.directory = directory;
+        this.codec = codec;
+        this.checkpointInterval = checkpointInterval;
+        this.fsync = fsync;
+
+        Files.createDirectories(directory);
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) tree = ScapegoatTreeSerializer.read(checkpoint, codec, alpha);
+        else tree = new ScapegoatTree<>(alpha);
+
+        log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            //the log may have just been created, its directory entry should survive a crash as well
+            forceDirectory();
+            long validLength = replay();
+            //dropping the torn tail, new frames go right after the last complete one
+            log.truncate(validLength);
+            log.position(validLength);
+        }
+        catch (IOException | RuntimeException e) {
+            //the caller gets no object to close the channel through
+            try {
+                log.close();
+            }
+            catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns after the change is in the log. If it can not be logged, the change is rolled back
+     * before the exception is thrown. An exception from the automatic checkpoint comes after
+     * the change is logged, so the change stays.
+     */
+    public boolean add(T value) throws IOException {
+        long record;
+        synchronized (this) {
+            checkNotFailed();
+            if (!tree.add(value)) return false;
+            try {
+                record = append(ADD, value);
+            }
+            catch (IOException | RuntimeException e) {
+                tree.remove(value);
+                throw e;
+            }
+        }
+        try {
+            awaitDurable(record);
+        }
+        catch (IOException e) {
+            synchronized (this) { tree.remove(value); }
+            throw e;
+        }
+        checkpointIfDue();
+        return true;
+    }
+
+    public boolean remove(T value) throws IOException {
+        long record;
+        synchronized (this) {
+            checkNotFailed();
+            if (!tree.remove(value)) return false;
+            try {
+                record = append(REMOVE, value);
+            }
+            catch (IOException | RuntimeException e) {
+                tree.add(value);
+                throw e;
+            }
+        }
+        try {
+            awaitDurable(record);
+        }
+        catch (IOException e) {
+            synchronized (this) { tree.add(value); }
+            throw e;
+        }
+        checkpointIfDue();
+        return true;
+    }
+
+    public synchronized boolean contains(Object o) { return tree.contains(o); }
+
+    public synchronized int size() { return tree.size(); }
+
+    public synchronized boolean isEmpty() { return tree.isEmpty(); }
+
+    /**
+     * Iterates over a copy taken under the lock, so add/remove from other threads do not break the iteration
+     * (and the iterator can not change the set bypassing the log). The copy costs O(n).
+     */
+    @Override
+    public synchronized Iterator<T> iterator() {
+        ArrayList<T> snapshot = new ArrayList<>(tree.size());
+        for (Object element : tree) snapshot.add((T) element);
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    /**
+     * Saves the whole set and empties the log.
+     * The new checkpoint replaces the old one with an atomic rename, so a crash leaves one of them intact.
+     * If the crash comes after the rename but before the log is emptied, the old log is replayed
+     * onto the new checkpoint, which is harmless: the state of a key is decided by the last add/remove of it.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (logLock) {
+            synchronized (this) {
+                writeCheckpoint();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (logLock) {
+            try {
+                if (failure == null) writeFrame();
+            }
+            finally {
+                log.close();
+            }
+        }
+    }
+
+    private void checkNotFailed() throws IOException {
+        if (failure != null)
+            throw new IOException("Writing the log failed earlier, reopen the tree to restore its durable state", failure);
+    }
+
+    private void forceDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException e) {
+            //Windows can not open a directory as a file, and NTFS makes renames durable on its own
+            if (!System.getProperty("os.name").startsWith("Windows")) throw e;
+        }
+    }
+
+    //called under this, returns the number of the record
+    private long append(byte operation, T value) throws IOException {
+        int recordStart = batchBytes.size();
+        try {
+            batch.writeByte(operation);
+            codec.write(batch, value, null);
+        }
+        catch (IOException | RuntimeException e) {
+            //a half-written record would corrupt the whole frame
+            batchBytes.truncate(recordStart);
+            throw e;
+        }
+        opsSinceCheckpoint++;
+        return ++appendedRecords;
+    }
+
+    //the thread that gets logLock first writes the records of all the threads waiting behind it
+    private void awaitDurable(long record) throws IOException {
+        synchronized (logLock) {
+            if (durableRecords >= record) return;
+            writeFrame();
+        }
+    }
+
+    //called under logLock
+    private void writeFrame() throws IOException {
+        byte[] records;
+        long lastRecord;
+        synchronized (this) {
+            checkNotFailed();
+            if (batchBytes.size() == 0) return;
+            records = batchBytes.toByteArray();
+            lastRecord = appendedRecords;
+            batchBytes.reset();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(records, 0, records.length);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + records.length);
+        frame.putInt(records.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(records);
+        frame.flip();
+        long start = log.position();
+        try {
+            while (frame.hasRemaining()) log.write(frame);
+            if (fsync) log.force(false);
+        }
+        catch (IOException e) {
+            //a partial frame would stop the replay and hide every frame written after it
+            failure = e;
+            try {
+                log.truncate(start);
+                log.position(start);
+            }
+            catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        durableRecords = lastRecord;
+    }
+
+    private void checkpointIfDue() throws IOException {
+        if (checkpointInterval == 0) return;
+        //checking before taking logLock, which may be held through an fsync
+        synchronized (this) {
+            if (opsSinceCheckpoint < checkpointInterval) return;
+        }
+        synchronized (logLock) {
+            synchronized (this) {
+                //another thread may have done it already
+                if (opsSinceCheckpoint >= checkpointInterval) writeCheckpoint();
+            }
+        }
+    }
+
+    //called under logLock and this
+    private void writeCheckpoint() throws IOException {
+        writeFrame();
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ScapegoatTreeSerializer.write(tree, codec, channel);
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        //the rename has to be durable before the log is emptied, otherwise a crash could keep
+        //the old checkpoint together with the empty log
+        forceDirectory();
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        opsSinceCheckpoint = 0;
+    }
+
+    private static class BatchBuffer extends ByteArrayOutputStream {
+        void truncate(int size) { count = size; }
+    }
+
+    //applies the complete frames of the log to the tree, returns the length of the log they take
+    private long replay() throws IOException {
+        long logSize = log.size();
+        long position = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(log), 1 << 16));
+        while (logSize - position >= FRAME_HEADER_SIZE) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0 || length > logSize - position - FRAME_HEADER_SIZE) break;
+            byte[] records = new byte[length];
+            in.readFully(records);
+            CRC32 crc = new CRC32();
+            crc.update(records, 0, length);
+            if ((int) crc.getValue() != checksum) break;
+
+            DataInputStream recordsIn = new DataInputStream(new ByteArrayInputStream(records));
+            while (recordsIn.available() > 0) {
+                byte operation = recordsIn.readByte();
+                T value = codec.read(recordsIn, null);
+                if (operation == ADD) tree.add(value);
+                else if (operation == REMOVE) tree.remove(value);
+                else throw new StreamCorruptedException("Unknown log operation: " + operation);
+                opsSinceCheckpoint++;
+            }
+            position += FRAME_HEADER_SIZE + length;
+        }
+        return position;
+    }
+}
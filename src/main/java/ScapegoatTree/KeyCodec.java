@@ -0,0 +1,17 @@
+package ScapegoatTree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoding of the keys stored by ScapegoatTreeSerializer.
+ * Keys are always written in ascending order, so a codec gets the previous key
+ * (null for the first one) and may store the difference instead of the whole value.
+ * Ready-made codecs are in KeyCodecs.
+ */
+public interface KeyCodec<T extends Comparable> {
+    void write(DataOutput out, T value, T previous) throws IOException;
+
+    T read(DataInput in, T previous) throws IOException;
+}
@@ -0,0 +1,86 @@
+package ScapegoatTree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+public final class KeyCodecs {
+    private KeyCodecs() {}
+
+    //16 MB, the longest String key STRING writes or reads
+    static final int MAX_STRING_BYTES = 1 << 24;
+
+    //fixed 4 bytes per key
+    public static final KeyCodec<Integer> INTEGER = new KeyCodec<Integer>() {
+        public void write(DataOutput out, Integer value, Integer previous) throws IOException { out.writeInt(value); }
+
+        public Integer read(DataInput in, Integer previous) throws IOException { return in.readInt(); }
+    };
+
+    //varint of the gap to the previous key: dense sets take 1 byte per key
+    public static final KeyCodec<Integer> INTEGER_DELTA = new KeyCodec<Integer>() {
+        public void write(DataOutput out, Integer value, Integer previous) throws IOException {
+            if (previous == null) writeVarLong(out, zigZag(value));
+            else writeVarLong(out, (long) value - previous); //gap is positive, but may not fit into an int
+        }
+
+        public Integer read(DataInput in, Integer previous) throws IOException {
+            if (previous == null) return (int) unZigZag(readVarLong(in));
+            return (int) (previous + readVarLong(in));
+        }
+    };
+
+    //fixed 8 bytes per key
+    public static final KeyCodec<Long> LONG = new KeyCodec<Long>() {
+        public void write(DataOutput out, Long value, Long previous) throws IOException { out.writeLong(value); }
+
+        public Long read(DataInput in, Long previous) throws IOException { return in.readLong(); }
+    };
+
+    //varint length + UTF-8 bytes, unlike writeUTF allows keys up to MAX_STRING_BYTES instead of 64K
+    public static final KeyCodec<String> STRING = new KeyCodec<String>() {
+        public void write(DataOutput out, String value, String previous) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES)
+                throw new IllegalArgumentException("String key should be at most " + MAX_STRING_BYTES +
+                        " bytes long. Current length: " + bytes.length);
+            writeVarLong(out, bytes.length);
+            out.write(bytes);
+        }
+
+        public String read(DataInput in, String previous) throws IOException {
+            long length = readVarLong(in);
+            //a corrupted length should not make the loader allocate gigabytes
+            if (length < 0 || length > MAX_STRING_BYTES)
+                throw new StreamCorruptedException("String key of " + length + " bytes");
+            byte[] bytes = new byte[(int) length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    //7 bits per byte, the highest bit marks that more bytes follow
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    private static long zigZag(long value) { return (value << 1) ^ (value >> 63); }
+
+    private static long unZigZag(long value) { return (value >>> 1) ^ -(value & 1); }
+}
@@ -3,9 +3,11 @@ package ScapegoatTree;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static java.lang.Integer.max;
 
@@ -14,24 +16,66 @@ public class MainWindow extends JPanel implements ActionListener {
     static JFrame frame;
     JOptionPane menu = new JOptionPane();
     private ScapegoatTree tree;
-    private Map nodePositions;
-    private Map subtreeSizes;
-    private boolean locationCalculating = true;
+    //layouts of the nodes, keyed by identity: TreeNode.hashCode() walks the whole subtree
+    private Map<TreeNode, LayoutNode> layoutCache;
+    private volatile LayoutNode layout = null;
+    //the tree is changed and laid out on this thread only, the EDT just paints the published layout
+    private ExecutorService worker;
     private int vertSpace = 5;
     private int horSpace = 25;
-    Dimension empty = new Dimension(0, 0);
-    FontMetrics fm = null;
+    private double zoom = 1.0;
+    private int panX = 0;
+    private int panY = 0;
+    private Point dragStart = null;
+    //subtrees narrower than that on the screen are drawn as a triangle
+    private static final int COLLAPSE_WIDTH = 12;
+    private static final double TEXT_MIN_ZOOM = 0.35;
+    FontMetrics fm;
 
     public MainWindow(ScapegoatTree inTree) {
         this.tree = inTree;
-        nodePositions = new HashMap();
-        subtreeSizes = new HashMap();
+        layoutCache = new IdentityHashMap<>();
+        fm = getFontMetrics(getFont());
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "tree-layout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.execute(this::calculateLocations);
 
         registerKeyboardAction(this, "add", KeyStroke.getKeyStroke(KeyEvent.VK_A, 0), WHEN_IN_FOCUSED_WINDOW);
         registerKeyboardAction(this, "search", KeyStroke.getKeyStroke(KeyEvent.VK_S, 0), WHEN_IN_FOCUSED_WINDOW);
         registerKeyboardAction(this, "remove", KeyStroke.getKeyStroke(KeyEvent.VK_R, 0), WHEN_IN_FOCUSED_WINDOW);
+        registerKeyboardAction(this, "reset", KeyStroke.getKeyStroke(KeyEvent.VK_0, 0), WHEN_IN_FOCUSED_WINDOW);
 
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) { dragStart = e.getPoint(); }
 
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                panX += e.getX() - dragStart.x;
+                panY += e.getY() - dragStart.y;
+                dragStart = e.getPoint();
+                repaint();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double newZoom = zoom * Math.pow(1.1, -e.getPreciseWheelRotation());
+                newZoom = Math.max(0.001, Math.min(10.0, newZoom));
+                //keeping the point under the cursor in place
+                double treeX = (e.getX() - getWidth() / 2 - panX) / zoom;
+                double treeY = (e.getY() - vertSpace - panY) / zoom;
+                panX = (int) Math.round(e.getX() - getWidth() / 2 - treeX * newZoom);
+                panY = (int) Math.round(e.getY() - vertSpace - treeY * newZoom);
+                zoom = newZoom;
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
     }
 
     @Override
@@ -42,9 +86,10 @@ public class MainWindow extends JPanel implements ActionListener {
             command = JOptionPane.showInputDialog("Add an integer:");
             try{
                 a =Integer.parseInt(command);
-                tree.add(a);
-                locationCalculating = true;
-                repaint();
+                worker.execute(() -> {
+                    tree.add(a);
+                    recalculateLocations(a);
+                });
             }
             catch(NumberFormatException ex){
                 JOptionPane.showMessageDialog(frame, "Please, write a proper integer");
@@ -54,12 +99,13 @@ public class MainWindow extends JPanel implements ActionListener {
             command = JOptionPane.showInputDialog("Searching for integer in tree:");
             try{
                 int input = Integer.parseInt(command);
-                boolean res = tree.contains(input);
-                if (res) JOptionPane.showMessageDialog(frame, "the " + input + " was found, yay!");
-                else JOptionPane.showMessageDialog(frame, "the " + input + " was not found :c");
-
-                locationCalculating = true;
-                repaint();
+                worker.execute(() -> {
+                    boolean res = tree.contains(input);
+                    SwingUtilities.invokeLater(() -> {
+                        if (res) JOptionPane.showMessageDialog(frame, "the " + input + " was found, yay!");
+                        else JOptionPane.showMessageDialog(frame, "the " + input + " was not found :c");
+                    });
+                });
             }
             catch(NumberFormatException ex){
                 JOptionPane.showMessageDialog(frame, "Please, write a proper integer");
@@ -69,87 +115,140 @@ public class MainWindow extends JPanel implements ActionListener {
             command = JOptionPane.showInputDialog("Remove an integer:");
             try{
                 a =Integer.parseInt(command);
-                tree.remove(a);
-                locationCalculating = true;
-                repaint();
+                worker.execute(() -> {
+                    tree.remove(a);
+                    recalculateLocations(a);
+                });
             }
             catch(NumberFormatException ex){
                 JOptionPane.showMessageDialog(frame, "Please, write a proper integer");
             }
         }
+        else if (e.getActionCommand().equals("reset")) {
+            zoom = 1.0;
+            panX = 0;
+            panY = 0;
+            repaint();
+        }
     }
 
-    private void calculateLocation(TreeNode node, int left, int right, int top) {
-        if (node == null) return;
-        Dimension leftDim = (Dimension) subtreeSizes.get(node.getLeftChild());
-        if (leftDim == null) leftDim = empty;
-        Dimension rightDim = (Dimension) subtreeSizes.get(node.getRightChild());
-        if (rightDim == null) rightDim = empty;
-        int center = 0;
-
-        if (right != Integer.MAX_VALUE)
-            center = right - rightDim.width - horSpace/2;
-        else if (left != Integer.MAX_VALUE)
-            center = left + leftDim.width + horSpace/2;
-
-        int strWidth = fm.stringWidth(Integer.toString((Integer) node.getValue()));
-        Rectangle r = new Rectangle(center - strWidth/2 - 3, top, strWidth + 6, fm.getHeight());
-        nodePositions.put(node, r);
-        calculateLocation(node.getLeftChild(),
-                Integer.MAX_VALUE, center - horSpace/2, top + fm.getHeight() + vertSpace);
-        calculateLocation(node.getRightChild(),
-                center + horSpace/2, Integer.MAX_VALUE, top + fm.getHeight() + vertSpace);
+    /**
+     * Immutable layout of a subtree, shared between the published layouts while the subtree does not change.
+     * Child positions are relative to the parent, so a change deep down the tree does not move the nodes
+     * of the other subtrees in the cache.
+     */
+    private static final class LayoutNode {
+        final String label;
+        final int labelWidth;
+        final LayoutNode left;
+        final LayoutNode right;
+        final int width;
+        final int height;
+        final int count;
+
+        LayoutNode(String label, int labelWidth, LayoutNode left, LayoutNode right, int width, int height) {
+            this.label = label;
+            this.labelWidth = labelWidth;
+            this.left = left;
+            this.right = right;
+            this.width = width;
+            this.height = height;
+            this.count = 1 + (left == null ? 0 : left.count) + (right == null ? 0 : right.count);
+        }
+
+        int leftWidth() { return left == null ? 0 : left.width; }
+
+        int rightWidth() { return right == null ? 0 : right.width; }
     }
 
-    private Dimension calculateSubtreeSize(TreeNode node) {
-        if (node == null) return new Dimension(0, 0);
+    private LayoutNode calculateSubtreeSize(TreeNode node) {
+        if (node == null) return null;
+        LayoutNode cached = layoutCache.get(node);
+        if (cached != null) return cached;
         String textInt = node.getValue().toString();
-        Dimension leftDim = calculateSubtreeSize(node.getLeftChild());
-        Dimension rightDim = calculateSubtreeSize(node.getRightChild());
-        int height = fm.getHeight() + vertSpace + max(leftDim.height, rightDim.height);
-        int width = leftDim.width + horSpace + rightDim.width;
-        Dimension nodePos = new Dimension(width, height);
-        subtreeSizes.put(node, nodePos);
+        LayoutNode leftDim = calculateSubtreeSize(node.getLeftChild());
+        LayoutNode rightDim = calculateSubtreeSize(node.getRightChild());
+        int height = fm.getHeight() + vertSpace + max(leftDim == null ? 0 : leftDim.height,
+                rightDim == null ? 0 : rightDim.height);
+        int width = (leftDim == null ? 0 : leftDim.width) + horSpace + (rightDim == null ? 0 : rightDim.width);
+        LayoutNode nodePos = new LayoutNode(textInt, fm.stringWidth(textInt), leftDim, rightDim, width, height);
+        layoutCache.put(node, nodePos);
         return nodePos;
     }
 
     private void calculateLocations() {
-        nodePositions.clear();
-        subtreeSizes.clear();
-        TreeNode root = tree.getRoot();
-        if (root != null) {
-            calculateSubtreeSize(root);
-            calculateLocation(root, Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+        layoutCache.clear();
+        publish();
+    }
+
+    //after add/remove of the value only its search path and the rebuilt subtree (new nodes) are laid out again
+    private void recalculateLocations(Comparable value) {
+        if (layoutCache.size() > 2 * tree.size() + 16) {
+            //too many nodes thrown away by the rebuilds are still in the cache
+            calculateLocations();
+            return;
         }
+        TreeNode node = tree.getRoot();
+        while (node != null) {
+            layoutCache.remove(node);
+            int compareVal = value.compareTo(node.getValue());
+            if (compareVal == 0) break;
+            node = compareVal < 0 ? node.getLeftChild() : node.getRightChild();
+        }
+        publish();
+    }
+
+    private void publish() {
+        layout = calculateSubtreeSize(tree.getRoot());
+        repaint();
     }
 
-    private void drawTree(Graphics2D g, TreeNode node, int x, int y, int borders) {
+    private void drawTree(Graphics2D g, LayoutNode node, int center, int top, int x, int y,
+                          Rectangle visible, int borders) {
         if (node == null) return;
-        Rectangle rect = (Rectangle) nodePositions.get(node);
-        g.draw(rect);
-        g.drawString(node.getValue().toString(), rect.x + 3, rect.y + borders);
         if (x != Integer.MAX_VALUE)
-            g.drawLine(x, y, rect.x + rect.width/2, rect.y);
-        drawTree(g, node.getLeftChild(), rect.x + rect.width/2, rect.y + rect.height, borders);
-        drawTree(g, node.getRightChild(), rect.x + rect.width/2, rect.y + rect.height, borders);
+            g.drawLine(x, y, center, top);
+        int leftEdge = center - horSpace/2 - node.leftWidth();
+        int rightEdge = center + horSpace/2 + node.rightWidth();
+        //viewport culling: the whole subtree is out of sight
+        if (rightEdge < visible.x || leftEdge > visible.x + visible.width
+                || top > visible.y + visible.height || top + node.height < visible.y) return;
+        //level of detail: the subtree is too small on the screen to tell the nodes apart
+        if (node.count > 1 && (rightEdge - leftEdge) * zoom < COLLAPSE_WIDTH) {
+            int bottom = top + node.height - vertSpace;
+            g.drawPolygon(new int[]{center, leftEdge, rightEdge}, new int[]{top, bottom, bottom}, 3);
+            return;
+        }
+        Rectangle rect = new Rectangle(center - node.labelWidth/2 - 3, top, node.labelWidth + 6, fm.getHeight());
+        g.draw(rect);
+        if (zoom >= TEXT_MIN_ZOOM) g.drawString(node.label, rect.x + 3, rect.y + borders);
+        int childTop = top + fm.getHeight() + vertSpace;
+        if (node.left != null)
+            drawTree(g, node.left, center - horSpace/2 - node.left.rightWidth() - horSpace/2, childTop,
+                    center, rect.y + rect.height, visible, borders);
+        if (node.right != null)
+            drawTree(g, node.right, center + horSpace/2 + node.right.leftWidth() + horSpace/2, childTop,
+                    center, rect.y + rect.height, visible, borders);
     }
 
     public void paint(Graphics g) {
         super.paint(g);
-        fm = g.getFontMetrics();
-        if (locationCalculating) {
-            locationCalculating = false;
-            calculateLocations();
-        }
-        Graphics2D g2D = (Graphics2D) g;
-        g2D.translate(getWidth() / 2, vertSpace);
-        drawTree(g2D, tree.getRoot(), Integer.MAX_VALUE, Integer.MAX_VALUE, fm.getLeading() + fm.getAscent());
-        fm = null;
+        LayoutNode root = layout;
+        if (root == null) return;
+        Graphics2D g2D = (Graphics2D) g.create();
+        g2D.setFont(getFont());
+        g2D.translate(getWidth() / 2 + panX, vertSpace + panY);
+        g2D.scale(zoom, zoom);
+        Rectangle visible = g2D.getClipBounds();
+        if (visible == null) visible = new Rectangle(Integer.MIN_VALUE / 2, Integer.MIN_VALUE / 2,
+                Integer.MAX_VALUE, Integer.MAX_VALUE);
+        drawTree(g2D, root, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE, visible, fm.getLeading() + fm.getAscent());
+        g2D.dispose();
     }
 
     @Override
     public Dimension getPreferredSize() {
-        return new Dimension(7000, 1000);
+        return new Dimension(1000, 1000);
     }
 
     public static void main(String[] args) {
@@ -162,21 +261,16 @@ public class MainWindow extends JPanel implements ActionListener {
                 "the interface is quite dumb: press the button for the required operation:" +
                 "\n a  Add an integer number" +
                 "\n s  Search an integer number" +
-                "\n r  Remove an integer number");
+                "\n r  Remove an integer number" +
+                "\n 0  Reset zoom and position" +
+                "\n drag the mouse to move the tree, use the wheel to zoom");
 
         JPanel contPanel = new MainWindow(tree);
 
         contPanel.setSize(1000, 1000);
         contPanel.setVisible(true);
 
-        JScrollPane scrollPane = new JScrollPane(contPanel);
-        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS);
-        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
-        scrollPane.setSize(1100, 1100);
-        scrollPane.setVisible(true);
-        //scrollPane.add(contPanel);
-
-        f.getContentPane().add(scrollPane);
+        f.getContentPane().add(contPanel);
         f.setBounds(75, 75, 1000, 1000);
         // create and add an event handler for window closing event
         f.addWindowListener(
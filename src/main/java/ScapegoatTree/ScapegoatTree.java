@@ -8,6 +8,7 @@ public class ScapegoatTree<T extends Comparable> implements Set{
     private int size;
     private Class classOfT;
     private int lastRebuildSize;
+    private int hash; //sum of the element hashes, as Set.hashCode() requires; kept up to date by add/remove
 
     //constructor and getter for root
 
@@ -18,6 +19,7 @@ public class ScapegoatTree<T extends Comparable> implements Set{
         size = 1;
         classOfT = value.getClass();
         lastRebuildSize = 1;
+        hash = value.hashCode();
     }
 
     public ScapegoatTree(double alpha) {
@@ -27,25 +29,40 @@ public class ScapegoatTree<T extends Comparable> implements Set{
         size = 0;
         classOfT = null;
         lastRebuildSize = 0;
+        hash = 0;
+    }
+
+    //wraps an already balanced tree, used by ScapegoatTreeSerializer
+    ScapegoatTree(TreeNode<T> root, int size, int hash, double alpha) {
+        this(alpha);
+        this.root = root;
+        this.size = size;
+        this.hash = hash;
+        classOfT = root.getValue().getClass();
     }
 
     public TreeNode<T> getRoot() { return root; }
 
     public int size() { return size; }
 
+    //Set semantics: the shape of the tree and alpha do not matter, only the elements
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        ScapegoatTree<?> that = (ScapegoatTree<?>) o;
-        return Double.compare(that.alpha, alpha) == 0 &&
-                size == that.size &&
-                Objects.equals(root, that.root) &&
-                Objects.equals(classOfT, that.classOfT);
+        if (!(o instanceof Set)) return false;
+        Set<?> that = (Set<?>) o;
+        if (size != that.size()) return false;
+        if (!(o instanceof ScapegoatTree)) return containsAll(that);
+        //both hashes are O(1) here, and both trees iterate in ascending order
+        if (hash != that.hashCode()) return false;
+        Iterator thisIt = iterator();
+        Iterator thatIt = that.iterator();
+        while (thisIt.hasNext()) if (!thisIt.next().equals(thatIt.next())) return false;
+        return true;
     }
 
     @Override
-    public int hashCode() { return Objects.hash(root, size, classOfT); }
+    public int hashCode() { return hash; }
 
     @Override
     public boolean isEmpty() { return root == null; }
@@ -108,11 +125,14 @@ public class ScapegoatTree<T extends Comparable> implements Set{
         T addValue = (T) o;
         if (root == null) {
             root = new TreeNode<>(addValue);
+            size = 1;
+            hash = addValue.hashCode();
             return true;
         }
         ArrayDeque<TreeNode<T>> path = new ArrayDeque<>();
         root.addAsChild(new TreeNode<>(addValue), path);
         size++;
+        hash += addValue.hashCode();
         while (!path.isEmpty()) {
             TreeNode<T> node = path.pop();
             double currAlpWeight = node.getWeight() * alpha;
@@ -139,6 +159,8 @@ public class ScapegoatTree<T extends Comparable> implements Set{
         TreeNode<T> removingNode = root.search(removeValue);
         if (removingNode == root && this.size == 1) {
             root = null;
+            size = 0;
+            hash = 0;
             return true;
         }
 
@@ -146,6 +168,7 @@ public class ScapegoatTree<T extends Comparable> implements Set{
         root.findPath(removingNode, path);
         rebuild(false, removingNode, path);
         size--;
+        hash -= removeValue.hashCode();
 
         if (size * alpha < lastRebuildSize) {
             rebuild(true, root, new ArrayDeque<TreeNode<T>>(){{add(root);}});
@@ -163,7 +186,11 @@ public class ScapegoatTree<T extends Comparable> implements Set{
     }
 
     @Override
-    public void clear() { root = null; }
+    public void clear() {
+        root = null;
+        size = 0;
+        hash = 0;
+    }
 
     @Override
     public boolean removeAll(Collection c) {
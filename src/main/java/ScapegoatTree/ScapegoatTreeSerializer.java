@@ -0,0 +1,103 @@
+package ScapegoatTree;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact streaming format for ScapegoatTree:
+ * magic (4 bytes), format version (1 byte), element count (4 bytes), then the keys in ascending order
+ * encoded by a KeyCodec. The keys are written straight from an in-order walk of the tree,
+ * and the reader builds a perfectly balanced tree in O(n) while consuming the stream,
+ * so no intermediate collection and no repeated add() is needed.
+ */
+public final class ScapegoatTreeSerializer {
+    private static final int MAGIC = 0x53475431; //"SGT1"
+    private static final byte VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ScapegoatTreeSerializer() {}
+
+    public static <T extends Comparable> void write(ScapegoatTree<T> tree, KeyCodec<T> codec,
+                                                    WritableByteChannel channel) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(tree.size());
+        T previous = null;
+        for (Object element : tree) {
+            T value = (T) element;
+            codec.write(out, value, previous);
+            previous = value;
+        }
+        //flushing without closing: the channel belongs to the caller
+        out.flush();
+    }
+
+    public static <T extends Comparable> void write(ScapegoatTree<T> tree, KeyCodec<T> codec,
+                                                    Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(tree, codec, channel);
+        }
+    }
+
+    public static <T extends Comparable> ScapegoatTree<T> read(ReadableByteChannel channel, KeyCodec<T> codec,
+                                                               double alpha) throws IOException {
+        //buffered reads may consume the channel past the last key, so one stream should hold one tree
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        if (in.readInt() != MAGIC) throw new StreamCorruptedException("Not a ScapegoatTree stream");
+        byte version = in.readByte();
+        if (version != VERSION) throw new StreamCorruptedException("Unsupported format version: " + version);
+        int size = in.readInt();
+        if (size < 0) throw new StreamCorruptedException("Negative element count: " + size);
+        if (size == 0) return new ScapegoatTree<>(alpha);
+        BalancedReader<T> reader = new BalancedReader<>(in, codec);
+        TreeNode<T> root = reader.readSubtree(size);
+        return new ScapegoatTree<>(root, size, reader.hash, alpha);
+    }
+
+    public static <T extends Comparable> ScapegoatTree<T> read(Path file, KeyCodec<T> codec,
+                                                               double alpha) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel, codec, alpha);
+        }
+    }
+
+    //the keys come in order, so the subtree of n keys is: (n - 1)/2 keys of the left subtree, the median, the rest
+    private static class BalancedReader<T extends Comparable> {
+        private final DataInput in;
+        private final KeyCodec<T> codec;
+        private T previous = null;
+        private int hash = 0;
+
+        BalancedReader(DataInput in, KeyCodec<T> codec) {
+            this.in = in;
+            this.codec = codec;
+        }
+
+        TreeNode<T> readSubtree(int count) throws IOException {
+            if (count == 0) return null;
+            int leftCount = (count - 1) / 2; //same median as ScapegoatTree.rebuild
+            TreeNode<T> left = readSubtree(leftCount);
+            TreeNode<T> node = new TreeNode<>(readKey());
+            node.setLeftChild(left);
+            node.setRightChild(readSubtree(count - 1 - leftCount));
+            return node;
+        }
+
+        private T readKey() throws IOException {
+            T value = codec.read(in, previous);
+            if (previous != null && value.compareTo(previous) <= 0)
+                throw new StreamCorruptedException("Keys are not in ascending order: " + previous + ", " + value);
+            previous = value;
+            hash += value.hashCode();
+            return value;
+        }
+    }
+}
@@ -2,7 +2,21 @@ package ScapegoatTree;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 import static org.junit.Assert.*;
 
@@ -135,6 +149,262 @@ public class Testing {
 
     }
 
+    @Test
+    public void scapegoatSizeTest() {
+        ScapegoatTree<Integer> tree = new ScapegoatTree<>(0.5);
+        for (int i = 0; i < 100; i++) tree.add(i);
+        assertEquals(100, tree.size());
+        for (int i = 0; i < 100; i++) assertTrue(tree.remove(i));
+        assertEquals(0, tree.size());
+        assertTrue(tree.isEmpty());
+        tree.add(1); tree.add(2);
+        tree.clear();
+        assertEquals(0, tree.size());
+    }
+
+    private static <T extends Comparable> ScapegoatTree<T> reload(ScapegoatTree<T> tree, KeyCodec<T> codec)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ScapegoatTreeSerializer.write(tree, codec, Channels.newChannel(bytes));
+        return ScapegoatTreeSerializer.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())),
+                codec, 0.5);
+    }
+
+    @Test
+    public void serializationTest() throws IOException {
+        ScapegoatTree<Integer> tree = new ScapegoatTree<Integer>(0.7) {{
+            add(Integer.MIN_VALUE); add(-5); add(0); add(3); add(1000000); add(Integer.MAX_VALUE);
+            for (int i = 10; i < 1000; i++) add(i);
+        }};
+        ArrayList<Integer> expected = new ArrayList<>();
+        tree.getRoot().getSubtreeAsList(true, expected);
+        for (KeyCodec<Integer> codec : new KeyCodec[]{KeyCodecs.INTEGER, KeyCodecs.INTEGER_DELTA}) {
+            ScapegoatTree<Integer> loaded = reload(tree, codec);
+            ArrayList<Integer> actual = new ArrayList<>();
+            loaded.getRoot().getSubtreeAsList(true, actual);
+            assertEquals(expected, actual);
+            assertEquals(tree.size(), loaded.size());
+            assertTrue(loaded.contains(-5));
+            assertTrue(loaded.add(5));
+            assertTrue(loaded.remove(Integer.MAX_VALUE));
+        }
+
+        ScapegoatTree<String> strings = new ScapegoatTree<String>(0.5) {{
+            add("b"); add(""); add("\u044f\u0431\u043b\u043e\u043a\u043e"); add("a");
+        }};
+        ScapegoatTree<String> loadedStrings = reload(strings, KeyCodecs.STRING);
+        assertEquals(4, loadedStrings.size());
+        for (Object s : strings) assertTrue(loadedStrings.contains(s));
+
+        assertTrue(reload(new ScapegoatTree<Integer>(0.5), KeyCodecs.INTEGER).isEmpty());
+    }
+
+    @Test
+    public void serializationBalanceTest() throws IOException {
+        ScapegoatTree<Integer> tree = new ScapegoatTree<>(0.9);
+        for (int i = 1; i <= 7; i++) tree.add(i);
+        //the loaded tree is perfectly balanced whatever the shape of the saved one
+        TreeNode<Integer> expected = new TreeNode<>(4);
+        expected.setLeftChild(new TreeNode<>(2));
+        expected.getLeftChild().setLeftChild(new TreeNode<>(1));
+        expected.getLeftChild().setRightChild(new TreeNode<>(3));
+        expected.setRightChild(new TreeNode<>(6));
+        expected.getRightChild().setLeftChild(new TreeNode<>(5));
+        expected.getRightChild().setRightChild(new TreeNode<>(7));
+        assertEquals(expected, reload(tree, KeyCodecs.INTEGER_DELTA).getRoot());
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void serializationCorruptedTest() throws IOException {
+        ScapegoatTreeSerializer.read(Channels.newChannel(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})),
+                KeyCodecs.INTEGER, 0.5);
+    }
+
+    @Test
+    public void serializationCorruptedStringTest() throws IOException {
+        //a 10-byte varint with the sign bit set and a length far over the limit
+        byte[][] lengths = {
+                {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01},
+                {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}
+        };
+        for (byte[] length : lengths) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ScapegoatTreeSerializer.write(new ScapegoatTree<>("a", 0.5), KeyCodecs.STRING, Channels.newChannel(bytes));
+            byte[] stream = bytes.toByteArray();
+            //the header is 9 bytes, then the length of "a" (1 byte) and "a" itself
+            byte[] corrupted = new byte[9 + length.length];
+            System.arraycopy(stream, 0, corrupted, 0, 9);
+            System.arraycopy(length, 0, corrupted, 9, length.length);
+            try {
+                ScapegoatTreeSerializer.read(Channels.newChannel(new ByteArrayInputStream(corrupted)),
+                        KeyCodecs.STRING, 0.5);
+                fail();
+            }
+            catch (StreamCorruptedException expected) {}
+        }
+    }
+
+    @Test
+    public void durableTreeTest() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("durable");
+        try {
+            DurableScapegoatTree<Integer> tree = new DurableScapegoatTree<>(dir, KeyCodecs.INTEGER, 0.5, 0, false);
+            for (int i = 0; i < 100; i++) tree.add(i);
+            for (int i = 0; i < 100; i += 2) tree.remove(i);
+            tree.close();
+
+            tree = new DurableScapegoatTree<>(dir, KeyCodecs.INTEGER, 0.5, 0, false);
+            assertEquals(50, tree.size());
+            assertTrue(tree.contains(1));
+            assertFalse(tree.contains(2));
+            tree.checkpoint();
+            assertEquals(0, Files.size(dir.resolve(DurableScapegoatTree.LOG_FILE)));
+            tree.add(1000);
+            tree.remove(1);
+            tree.close();
+
+            Path logFile = dir.resolve(DurableScapegoatTree.LOG_FILE);
+            long validLength = Files.size(logFile);
+            //a valid "add 3000" record, it must not be replayed from a frame that fails its checks
+            byte[] record = {1, 0, 0, 0x0B, (byte) 0xB8};
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, record.length);
+            int goodCrc = (int) crc.getValue();
+            byte[][] tails = {
+                    {0, 0, 0, 100, 1, 2}, //shorter than a frame header
+                    frame(record.length, goodCrc + 1, record), //wrong CRC
+                    frame(1000, goodCrc, record) //length past the end of the file
+            };
+            for (byte[] tail : tails) {
+                //a frame torn by a crash is dropped, the operations before it are kept
+                Files.write(logFile, tail, StandardOpenOption.APPEND);
+                tree = new DurableScapegoatTree<>(dir, KeyCodecs.INTEGER, 0.5, 10, true);
+                assertEquals(50, tree.size());
+                assertTrue(tree.contains(1000));
+                assertFalse(tree.contains(1));
+                assertFalse(tree.contains(3000));
+                assertEquals(validLength, Files.size(logFile));
+                tree.close();
+            }
+            tree = new DurableScapegoatTree<>(dir, KeyCodecs.INTEGER, 0.5, 10, true);
+            tree.add(2000);
+            tree.close();
+            tree = new DurableScapegoatTree<>(dir, KeyCodecs.INTEGER, 0.5, 10, true);
+            assertTrue(tree.contains(2000));
+            assertEquals(51, tree.size());
+
+            //the iterator works on a copy, changes made during the iteration do not affect it
+            int iterated = 0;
+            for (Integer value : tree) {
+                tree.add(value + 1000000);
+                iterated++;
+            }
+            assertEquals(51, iterated);
+            assertEquals(102, tree.size());
+            tree.close();
+
+            //acknowledged operations are in the log even if the tree is never closed
+            DurableScapegoatTree<String> strings = new DurableScapegoatTree<>(dir.resolve("strings"),
+                    KeyCodecs.STRING, 0.5, 7, true);
+            for (int i = 0; i < 12; i++) strings.add("k" + i);
+            for (int i = 0; i < 12; i += 3) strings.remove("k" + i);
+            DurableScapegoatTree<String> reopened = new DurableScapegoatTree<>(dir.resolve("strings"),
+                    KeyCodecs.STRING, 0.5, 7, true);
+            assertEquals(8, reopened.size());
+            assertFalse(reopened.contains("k3"));
+            assertTrue(reopened.contains("k4"));
+            reopened.close();
+            strings.close();
+
+            //concurrent writers share the frames, nothing is lost
+            DurableScapegoatTree<Integer> shared = new DurableScapegoatTree<>(dir.resolve("shared"),
+                    KeyCodecs.INTEGER, 0.5, 100, true);
+            Thread[] writers = new Thread[4];
+            IOException[] errors = new IOException[writers.length];
+            for (int t = 0; t < writers.length; t++) {
+                int first = t * 250;
+                int number = t;
+                writers[t] = new Thread(() -> {
+                    try {
+                        for (int i = first; i < first + 250; i++) shared.add(i);
+                    }
+                    catch (IOException e) {
+                        errors[number] = e;
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) writer.join();
+            for (IOException error : errors) assertNull(error);
+            DurableScapegoatTree<Integer> reopenedShared = new DurableScapegoatTree<>(dir.resolve("shared"),
+                    KeyCodecs.INTEGER, 0.5, 0, false);
+            assertEquals(1000, reopenedShared.size());
+            reopenedShared.close();
+            shared.close();
+
+            //a frame with a valid CRC but an unknown operation fails the startup
+            byte[] unknown = {7, 0, 0, 0, 1};
+            crc.reset();
+            crc.update(unknown, 0, unknown.length);
+            Path broken = dir.resolve("broken");
+            Files.createDirectories(broken);
+            Files.write(broken.resolve(DurableScapegoatTree.LOG_FILE), frame(unknown.length, (int) crc.getValue(), unknown));
+            try {
+                new DurableScapegoatTree<>(broken, KeyCodecs.INTEGER, 0.5, 0, false);
+                fail();
+            }
+            catch (StreamCorruptedException expected) {}
+        }
+        finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static byte[] frame(int length, int crc, byte[] records) {
+        return ByteBuffer.allocate(8 + records.length).putInt(length).putInt(crc).put(records).array();
+    }
+
+    @Test
+    public void scapegoatEqualsHashCodeTest() throws IOException {
+        ScapegoatTree<Integer> ascending = new ScapegoatTree<>(0.9);
+        ScapegoatTree<Integer> descending = new ScapegoatTree<>(0.5);
+        TreeSet<Integer> treeSet = new TreeSet<>();
+        for (int i = 0; i < 50; i++) {
+            ascending.add(i);
+            descending.add(49 - i);
+            treeSet.add(i);
+        }
+        //different shapes and alphas, same elements
+        assertNotEquals(ascending.getRoot(), descending.getRoot());
+        assertEquals(ascending, descending);
+        assertEquals(ascending.hashCode(), descending.hashCode());
+        assertEquals(treeSet.hashCode(), ascending.hashCode());
+        assertEquals(ascending, treeSet);
+        assertEquals(treeSet, ascending);
+        assertEquals(new HashSet<>(treeSet), ascending);
+
+        ScapegoatTree<Integer> reloaded = reload(ascending, KeyCodecs.INTEGER_DELTA);
+        assertEquals(ascending, reloaded);
+        assertEquals(ascending.hashCode(), reloaded.hashCode());
+
+        descending.remove(10);
+        descending.add(100);
+        assertNotEquals(ascending, descending);
+        treeSet.remove(10);
+        treeSet.add(100);
+        assertEquals(treeSet.hashCode(), descending.hashCode());
+        descending.clear();
+        assertEquals(0, descending.hashCode());
+        assertEquals(new ScapegoatTree<Integer>(0.7), descending);
+    }
+
     @Test
     public void improvisedBenchmarkTest() {
         ScapegoatTree treeCover = new ScapegoatTree(0.5) {{